@@ -0,0 +1,695 @@
+/**
+ * ColumnFile writes and reads a compact columnar file format. Rows are
+ * gathered into blocks; each column of a block is compressed separately, and
+ * an index of every column chunk is written at the end of the file so that a
+ * single column can be read back without scanning the others.
+ *
+ * Layout: MAGIC, column count, column types, then the blocks. Each block is
+ * BLOCK_MAGIC, its row count and the length of each column chunk, followed
+ * by the compressed column chunks. On close the index (block count, and for
+ * each block its row count followed by the offset and length of each column
+ * chunk), the index offset and MAGIC are appended. Because blocks describe
+ * themselves, a file whose writer never closed can still be read up to its
+ * last complete block. Opening a Writer on an existing file appends new
+ * blocks after its data and rewrites the index on close.
+ * @author Alex Sandberg-Bernard
+ */
+
+// import IO, concurrency and compression
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public final class ColumnFile
+{
+    // column types
+    public static final int INT = 0;
+    public static final int LONG = 1;
+    public static final int DOUBLE = 2;
+
+    // file marker, written at both ends of the file, and block marker
+    private static final int MAGIC = 0x564d4346;
+    private static final int BLOCK_MAGIC = 0x564d4342;
+
+    // full blocks allowed to wait for the background writer
+    private static final int QUEUE_BLOCKS = 4;
+
+    // how often a blocked hand-off rechecks the background writer
+    private static final long OFFER_MILLIS = 100;
+
+    /**
+     * Private constructor; use ColumnFile.Writer or ColumnFile.Reader.
+     */
+    private ColumnFile()
+    {
+    }
+
+    /**
+     * Writer buffers rows into blocks and hands them to a background thread,
+     * which compresses and writes them. A block is handed off once it holds
+     * blockRows rows, and any partial block on close(), so callers must close
+     * the writer on every exit path. Appending a row never performs I/O; it
+     * only waits if the writer has fallen QUEUE_BLOCKS blocks behind, which
+     * keeps memory use bounded, and it fails instead of waiting if the writer
+     * has stopped.
+     */
+    public static final class Writer implements Closeable
+    {
+        // end-of-stream marker for the background thread
+        private static final Block END = new Block(new int[0], 0);
+
+        // writer variables
+        private final int[] types;
+        private final int blockRows;
+        private final BlockingQueue<Block> queue =
+                new ArrayBlockingQueue<>(QUEUE_BLOCKS);
+        private final Thread thread;
+        private final DataOutputStream out;
+        private final List<long[]> index = new ArrayList<>();
+        private final long[] rowLongs;
+        private final double[] rowDoubles;
+        private volatile Throwable failure;
+        private long position;
+
+        // guarded by this: block being filled
+        private Block block;
+        private boolean closed;
+
+        /**
+         * Constructor creates the file and writes its header, or opens an
+         * existing column file to append to, then starts the background
+         * writer thread.
+         * @param file -- destination file; existing rows are kept
+         * @param types -- INT, LONG or DOUBLE for each column
+         * @param blockRows -- largest amount of rows gathered per block
+         * @throws IOException if the file cannot be created, or exists but
+         * is not a column file with the same column types
+         */
+        public Writer(File file, int[] types, int blockRows) throws IOException
+        {
+            // set writer variables
+            this.types = types.clone();
+            this.blockRows = blockRows;
+            this.block = new Block(this.types, blockRows);
+            this.rowLongs = new long[types.length];
+            this.rowDoubles = new double[types.length];
+
+            if(file.length() > 0)
+            {
+                // keep existing blocks; drop old index so new blocks follow
+                try (Reader reader = new Reader(file))
+                {
+                    if(!Arrays.equals(reader.types, this.types))
+                    {
+                        throw new IOException(file +
+                                ": existing file has different columns");
+                    }
+                    for(int stored = 0; stored<reader.blockRows.length;
+                        stored++)
+                    {
+                        long[] entry = new long[1 + types.length*2];
+                        entry[0] = reader.blockRows[stored];
+                        for(int column = 0; column<types.length; column++)
+                        {
+                            entry[1 + column*2] =
+                                    reader.offsets[stored][column];
+                            entry[2 + column*2] =
+                                    reader.lengths[stored][column];
+                        }
+                        index.add(entry);
+                    }
+                    position = reader.dataEnd;
+                }
+                try (RandomAccessFile existing =
+                             new RandomAccessFile(file, "rw"))
+                {
+                    existing.setLength(position);
+                }
+                out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(file, true)));
+            }
+            else
+            {
+                // write header
+                out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(file)));
+                out.writeInt(MAGIC);
+                out.writeInt(types.length);
+                for(int type : types)
+                {
+                    out.writeByte(type);
+                }
+                out.flush();
+                position = 8 + types.length;
+            }
+
+            // start background writer
+            thread = new Thread(this::drain, "ColumnFile " + file.getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Sets an INT or LONG value in the current row.
+         * @param column -- zero-based column index
+         * @param value -- value to store
+         */
+        public void putLong(int column, long value)
+        {
+            rowLongs[column] = value;
+        }
+
+        /**
+         * Sets a DOUBLE value in the current row.
+         * @param column -- zero-based column index
+         * @param value -- value to store
+         */
+        public void putDouble(int column, double value)
+        {
+            rowDoubles[column] = value;
+        }
+
+        /**
+         * Completes the current row, handing the block to the background
+         * writer once it is full.
+         * @throws IOException if the writer is closed or has failed
+         */
+        public void endRow() throws IOException
+        {
+            checkFailure();
+
+            // add row to block; swap out block if full
+            Block full = null;
+            synchronized(this)
+            {
+                if(closed)
+                {
+                    throw new IOException("column file closed");
+                }
+                for(int column = 0; column<types.length; column++)
+                {
+                    if(types[column] == DOUBLE)
+                    {
+                        block.doubles[column][block.rows] = rowDoubles[column];
+                    }
+                    else
+                    {
+                        block.longs[column][block.rows] = rowLongs[column];
+                    }
+                }
+                block.rows++;
+                if(block.rows == blockRows)
+                {
+                    full = block;
+                    block = new Block(types, blockRows);
+                }
+            }
+
+            if(full != null)
+            {
+                enqueue(full);
+            }
+        }
+
+        /**
+         * Writes any partial block and the index, then closes the file. Safe
+         * to call more than once.
+         * @throws IOException if any block or the index could not be written
+         */
+        @Override
+        public void close() throws IOException
+        {
+            // swap out partial block
+            Block partial = null;
+            synchronized(this)
+            {
+                if(closed)
+                {
+                    return;
+                }
+                closed = true;
+                if(block.rows > 0)
+                {
+                    partial = block;
+                }
+            }
+
+            try (DataOutputStream output = out)
+            {
+                // flush partial block and stop background writer
+                if(partial != null)
+                {
+                    enqueue(partial);
+                }
+                enqueue(END);
+                try
+                {
+                    thread.join();
+                }
+                catch(InterruptedException exception)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(
+                            "interrupted while closing");
+                }
+                checkFailure();
+
+                // write index and trailer
+                long indexPosition = position;
+                output.writeInt(index.size());
+                for(long[] entry : index)
+                {
+                    output.writeInt((int) entry[0]);
+                    for(int column = 0; column<types.length; column++)
+                    {
+                        output.writeLong(entry[1 + column*2]);
+                        output.writeInt((int) entry[2 + column*2]);
+                    }
+                }
+                output.writeLong(indexPosition);
+                output.writeInt(MAGIC);
+            }
+        }
+
+        // hand a block to the background writer, failing if it has stopped
+        private void enqueue(Block full) throws IOException
+        {
+            try
+            {
+                while(!queue.offer(full, OFFER_MILLIS,
+                        TimeUnit.MILLISECONDS))
+                {
+                    checkFailure();
+                    if(!thread.isAlive())
+                    {
+                        throw new IOException("column file writer stopped");
+                    }
+                }
+            }
+            catch(InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while queueing");
+            }
+        }
+
+        // rethrow a failure from the background writer
+        private void checkFailure() throws IOException
+        {
+            if(failure != null)
+            {
+                throw new IOException("column file write failed", failure);
+            }
+        }
+
+        // background thread: write blocks until END
+        private void drain()
+        {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try
+            {
+                Block next;
+                while((next = queue.take()) != END)
+                {
+                    writeBlock(next, deflater);
+                }
+            }
+            catch(Throwable throwable)
+            {
+                failure = throwable;
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+
+        // compress a block's columns and write the block to the file
+        private void writeBlock(Block next, Deflater deflater)
+                throws IOException
+        {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            byte[][] chunks = new byte[types.length][];
+            for(int column = 0; column<types.length; column++)
+            {
+                // serialize column values
+                raw.reset();
+                DataOutputStream values = new DataOutputStream(raw);
+                for(int row = 0; row<next.rows; row++)
+                {
+                    switch(types[column])
+                    {
+                        case INT:
+                        {
+                            values.writeInt((int) next.longs[column][row]);
+                            break;
+                        }
+                        case LONG:
+                        {
+                            values.writeLong(next.longs[column][row]);
+                            break;
+                        }
+                        default:
+                        {
+                            values.writeDouble(next.doubles[column][row]);
+                        }
+                    }
+                }
+
+                // compress column chunk
+                deflater.reset();
+                deflater.setInput(raw.toByteArray());
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                while(!deflater.finished())
+                {
+                    int count = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, count);
+                }
+                chunks[column] = compressed.toByteArray();
+            }
+
+            // write block header, then chunks
+            out.writeInt(BLOCK_MAGIC);
+            out.writeInt(next.rows);
+            for(byte[] chunk : chunks)
+            {
+                out.writeInt(chunk.length);
+            }
+            position += 8 + 4 * types.length;
+
+            long[] entry = new long[1 + types.length*2];
+            entry[0] = next.rows;
+            for(int column = 0; column<types.length; column++)
+            {
+                out.write(chunks[column]);
+                entry[1 + column*2] = position;
+                entry[2 + column*2] = chunks[column].length;
+                position += chunks[column].length;
+            }
+            out.flush();
+            index.add(entry);
+        }
+    }
+
+    /**
+     * Reader loads the index of a column file and reads individual columns,
+     * touching only the chunks that belong to the requested column. Files
+     * without an index, left by a writer that never closed, are read up to
+     * their last complete block.
+     */
+    public static final class Reader implements Closeable
+    {
+        // reader variables
+        private final RandomAccessFile file;
+        private final int[] types;
+        private final int[] blockRows;
+        private final long[][] offsets;
+        private final int[][] lengths;
+        private final int rows;
+        private final boolean complete;
+        private long dataEnd;
+
+        /**
+         * Constructor opens a column file and reads its header and index.
+         * @param file -- column file written by ColumnFile.Writer
+         * @throws IOException if the file cannot be read or is not a column
+         * file
+         */
+        public Reader(File file) throws IOException
+        {
+            this.file = new RandomAccessFile(file, "r");
+            try
+            {
+                // read header
+                if(this.file.length() < 8 || this.file.readInt() != MAGIC)
+                {
+                    throw new IOException(file + ": not a column file");
+                }
+                types = new int[this.file.readInt()];
+                for(int column = 0; column<types.length; column++)
+                {
+                    types[column] = this.file.readByte();
+                }
+                long dataStart = this.file.getFilePointer();
+
+                // read index from trailer, or rebuild it from block headers
+                List<long[]> index = readIndex(dataStart);
+                complete = (index != null);
+                if(index == null)
+                {
+                    index = scanBlocks(dataStart);
+                }
+
+                blockRows = new int[index.size()];
+                offsets = new long[index.size()][types.length];
+                lengths = new int[index.size()][types.length];
+                int total = 0;
+                for(int block = 0; block<index.size(); block++)
+                {
+                    long[] entry = index.get(block);
+                    blockRows[block] = (int) entry[0];
+                    total += blockRows[block];
+                    for(int column = 0; column<types.length; column++)
+                    {
+                        offsets[block][column] = entry[1 + column*2];
+                        lengths[block][column] = (int) entry[2 + column*2];
+                    }
+                }
+                rows = total;
+            }
+            catch(IOException exception)
+            {
+                this.file.close();
+                throw exception;
+            }
+        }
+
+        /**
+         * Returns the amount of rows in the file.
+         * @return integer count of rows
+         */
+        public int getRows()
+        {
+            return rows;
+        }
+
+        /**
+         * Returns whether the file was closed properly. An incomplete file is
+         * read up to its last complete block.
+         * @return boolean true if the file has its index and trailer
+         */
+        public boolean isComplete()
+        {
+            return complete;
+        }
+
+        /**
+         * Reads an INT or LONG column.
+         * @param column -- zero-based column index
+         * @return long array holding one value per row
+         * @throws IOException if the column cannot be read
+         * @throws IllegalArgumentException if the column holds DOUBLE values
+         */
+        public long[] readLongs(int column) throws IOException
+        {
+            if(types[column] == DOUBLE)
+            {
+                throw new IllegalArgumentException("column " + column +
+                        " is not an INT or LONG column");
+            }
+
+            long[] values = new long[rows];
+            int row = 0;
+            for(int block = 0; block<blockRows.length; block++)
+            {
+                DataInputStream in = chunk(block, column);
+                for(int index = 0; index<blockRows[block]; index++)
+                {
+                    values[row++] = (types[column] == INT) ? in.readInt()
+                            : in.readLong();
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Reads a DOUBLE column.
+         * @param column -- zero-based column index
+         * @return double array holding one value per row
+         * @throws IOException if the column cannot be read
+         * @throws IllegalArgumentException if the column is not DOUBLE
+         */
+        public double[] readDoubles(int column) throws IOException
+        {
+            if(types[column] != DOUBLE)
+            {
+                throw new IllegalArgumentException("column " + column +
+                        " is not a DOUBLE column");
+            }
+
+            double[] values = new double[rows];
+            int row = 0;
+            for(int block = 0; block<blockRows.length; block++)
+            {
+                DataInputStream in = chunk(block, column);
+                for(int index = 0; index<blockRows[block]; index++)
+                {
+                    values[row++] = in.readDouble();
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Closes the underlying file.
+         * @throws IOException if the file cannot be closed
+         */
+        @Override
+        public void close() throws IOException
+        {
+            file.close();
+        }
+
+        // read the index written on close, or return null if there is none
+        private List<long[]> readIndex(long dataStart) throws IOException
+        {
+            long length = file.length();
+            if(length < dataStart + 16)
+            {
+                return null;
+            }
+            file.seek(length - 12);
+            long indexPosition = file.readLong();
+            if(file.readInt() != MAGIC || indexPosition < dataStart ||
+                    indexPosition > length - 16)
+            {
+                return null;
+            }
+
+            dataEnd = indexPosition;
+            file.seek(indexPosition);
+            int blocks = file.readInt();
+            List<long[]> index = new ArrayList<>();
+            for(int block = 0; block<blocks; block++)
+            {
+                long[] entry = new long[1 + types.length*2];
+                entry[0] = file.readInt();
+                for(int column = 0; column<types.length; column++)
+                {
+                    entry[1 + column*2] = file.readLong();
+                    entry[2 + column*2] = file.readInt();
+                }
+                index.add(entry);
+            }
+            return index;
+        }
+
+        // rebuild the index from block headers, stopping at the first
+        // incomplete block
+        private List<long[]> scanBlocks(long dataStart) throws IOException
+        {
+            List<long[]> index = new ArrayList<>();
+            long length = file.length();
+            long position = dataStart;
+            int headerSize = 8 + 4 * types.length;
+            while(position + headerSize <= length)
+            {
+                file.seek(position);
+                if(file.readInt() != BLOCK_MAGIC)
+                {
+                    break;
+                }
+                long[] entry = new long[1 + types.length*2];
+                entry[0] = file.readInt();
+                long chunkPosition = position + headerSize;
+                for(int column = 0; column<types.length; column++)
+                {
+                    entry[1 + column*2] = chunkPosition;
+                    entry[2 + column*2] = file.readInt();
+                    chunkPosition += entry[2 + column*2];
+                }
+                if(entry[0] < 0 || chunkPosition > length)
+                {
+                    break;
+                }
+                index.add(entry);
+                position = chunkPosition;
+            }
+            dataEnd = position;
+            return index;
+        }
+
+        // read and decompress one column chunk of a block
+        private DataInputStream chunk(int block, int column) throws IOException
+        {
+            byte[] compressed = new byte[lengths[block][column]];
+            file.seek(offsets[block][column]);
+            file.readFully(compressed);
+
+            int width = (types[column] == INT) ? 4 : 8;
+            byte[] raw = new byte[blockRows[block] * width];
+            Inflater inflater = new Inflater();
+            try
+            {
+                inflater.setInput(compressed);
+                int count = 0;
+                while(count < raw.length && !inflater.finished())
+                {
+                    int inflated = inflater.inflate(raw, count,
+                            raw.length - count);
+                    if(inflated == 0 && inflater.needsInput())
+                    {
+                        throw new IOException("truncated column chunk");
+                    }
+                    count += inflated;
+                }
+            }
+            catch(DataFormatException exception)
+            {
+                throw new IOException("corrupt column chunk", exception);
+            }
+            finally
+            {
+                inflater.end();
+            }
+            return new DataInputStream(new ByteArrayInputStream(raw));
+        }
+    }
+
+    /**
+     * Block holds the values of up to blockRows rows, one array per column.
+     */
+    private static final class Block
+    {
+        // block variables
+        private final long[][] longs;
+        private final double[][] doubles;
+        private int rows;
+
+        private Block(int[] types, int blockRows)
+        {
+            longs = new long[types.length][];
+            doubles = new double[types.length][];
+            for(int column = 0; column<types.length; column++)
+            {
+                if(types[column] == DOUBLE)
+                {
+                    doubles[column] = new double[blockRows];
+                }
+                else
+                {
+                    longs[column] = new long[blockRows];
+                }
+            }
+        }
+    }
+}
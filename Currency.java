@@ -5,84 +5,40 @@
  * @author Alex Sandberg-Bernard
  */
 
-// import IO
-import java.io.*;
-
 public class Currency
 {
     // class variables
-    private File currencyFile;
     private int currencyEntries;
-    private String header;
     private double changeAmount = 0;
 
-    // declare currency arrays
-    private String[] currency;
-    private String[] currencyName;
-    private String[] currencyType;
-    private double[] value;
+    // shared denomination information; only quantities are held per machine
+    private CurrencySet currencySet;
     private int[] quantities;
 
+    // optional history of dispensed change
+    private HistoryExporter history;
+
     /**
-     * Default constructor to create Currency objects.
-     * @param currencyFile -- user-supplied formatted currency data file
-     * @param currencyEntries -- integer specifying the amount of entries in
-     *                        currency data file
+     * Default constructor to create Currency objects sharing an already loaded
+     * denomination set, filled with the quantities listed in its data file.
+     * @param currencySet -- shared set of denomination information
      */
-    public Currency(File currencyFile, int currencyEntries)
+    public Currency(CurrencySet currencySet)
     {
         // set class variables
-        this.currencyFile = currencyFile;
-        this.currencyEntries = currencyEntries;
+        this.currencyEntries = currencySet.size();
+        this.currencySet = currencySet;
+        this.quantities = currencySet.getStartingQuantities();
     }
 
     /**
-     * Setter method loads class arrays with data from currency data file.
-     * @param currencyFile -- user-supplied formatted currency data file
-     * @param currencyEntries -- integer specifying the amount of entries in
-     *                        currency data file
+     * Setter method enables recording of dispensed change to a history
+     * exporter.
+     * @param history -- history exporter, or null to disable recording
      */
-    public void setCurrency(File currencyFile, int currencyEntries)
+    public void setHistory(HistoryExporter history)
     {
-        // read currency data file
-        // use try/catch to catch IO exceptions
-        try (BufferedReader br = new BufferedReader(new FileReader
-                (currencyFile)))
-        {
-            // read header to String
-            header = br.readLine();
-
-            // eat blank line
-            br.readLine();
-
-            // create inventory arrays of size inventoryEntries
-            currency = new String[currencyEntries];
-            currencyName = new String[currencyEntries];
-            currencyType = new String[currencyEntries];
-            value = new double[currencyEntries];
-            quantities = new int[currencyEntries];
-
-            // fill arrays but substringing data file
-            for (int index = 0; index<currencyEntries; index++)
-            {
-                String line;
-                line = br.readLine();
-                currency[index] = line.substring(3,10).
-                        replaceAll(" ", "");
-                currencyName[index] = line.substring(15,40).
-                        replaceAll(" ", "");
-                currencyType[index] = line.substring(47,60).
-                        replaceAll(" ", "");
-                value[index] = Double.valueOf(line.substring(67,75).
-                        replaceAll(" ", ""));
-                quantities[index] = Integer.valueOf(line.substring(85,90).
-                        replaceAll(" ", ""));
-            }
-        }
-        catch(IOException exception)
-        {
-            System.out.println("Exception: " + exception);
-        }
+        this.history = history;
     }
 
     /**
@@ -92,13 +48,16 @@ public class Currency
     {
         // print formatted currency information
         System.out.println();
-        System.out.println(String.format("%5s%16s", "Currency #", header));
+        System.out.println(String.format("%5s%16s", "Currency #",
+                currencySet.getHeader()));
         for(int index = 0; index<currencyEntries; index++)
         {
             System.out.print(String.format("%9d%s",(index + 1),"." ));
             System.out.println(String.format("%10s%30s%20s%15.2f%15d",
-                    currency[index], currencyName[index], currencyType[index],
-                    value[index], quantities[index]));
+                    currencySet.getCurrency(index),
+                    currencySet.getCurrencyName(index),
+                    currencySet.getCurrencyType(index),
+                    currencySet.getValue(index), quantities[index]));
         }
     }
 
@@ -116,8 +75,8 @@ public class Currency
         // set index
         int index = currencyType-1;
 
-        // return double value at index, multiplied by currencyNums
-        return (currencyNums * value[index]);
+        // return value at index, multiplied by currencyNums
+        return (currencyNums * currencySet.getValue(index));
     }
 
     /**
@@ -145,23 +104,25 @@ public class Currency
         quantities[indexCur] += currencyNums;
 
         // print change amount
-        System.out.println("Change amount: " + currency[indexCur] + " " +
+        System.out.println("Change amount: " +
+                currencySet.getCurrency(indexCur) + " " +
                 changeAmount);
 
         // iterate through currency types to make change
         for(int index=0; index<currencyEntries; index++)
         {
             // variables for change
+            double value = currencySet.getValue(index);
             int wholeAmount = 0;
             double remainder = 0;
 
             // use largest values possible first
             // skip if quantity=0
-            if ((value[index] <= changeAmount) && !(quantities[index]==0))
+            if ((value <= changeAmount) && !(quantities[index]==0))
             {
 
                 // calculate largest amount of whole currency units possible
-                wholeAmount = (int) (changeAmount/value[index]);
+                wholeAmount = (int) (changeAmount/value);
 
                 // prevent quantity from going negative by setting wholeAmount
                 // maximum to amount equal to amount currently stored in array
@@ -171,19 +132,25 @@ public class Currency
                 }
 
                 // calculate remainder
-                remainder = changeAmount - (wholeAmount * value[index]);
+                remainder = changeAmount - (wholeAmount * value);
 
                 // update change amount
                 changeAmount = remainder;
 
                 // print change results
                 System.out.println("Change: " + wholeAmount + " x " +
-                        currencyName[index] + " (" + currency[index] + " " +
-                        value[index] + ")");
+                        currencySet.getCurrencyName(index) + " (" +
+                        currencySet.getCurrency(index) + " " + value + ")");
 
                 // update quantities array
                 quantities[index] = quantities[index] - wholeAmount;
 
+                // record dispensed change
+                if(history != null)
+                {
+                    history.recordChange(index + 1, wholeAmount, value);
+                }
+
             }
         }
     }
@@ -209,7 +176,7 @@ public class Currency
         // calculate total amount of money in machine
         for(int index=0; index<currencyEntries; index++)
         {
-            moneyTotal += (value[index] * quantities[index]);
+            moneyTotal += (currencySet.getValue(index) * quantities[index]);
         }
 
         // return false if there's not enough money in machine
@@ -223,12 +190,14 @@ public class Currency
         double remainder = 0;
         for(int index=0; index<currencyEntries; index++)
         {
+            double value = currencySet.getValue(index);
+
             // use largest values possible first
             // skip if quantity=0
-            if ((value[index] <= changeAmount) && !(quantities[index]==0))
+            if ((value <= changeAmount) && !(quantities[index]==0))
             {
                 // calculate largest amount of whole currency units possible
-                wholeAmount = (int) (changeAmount/value[index]);
+                wholeAmount = (int) (changeAmount/value);
 
                 // prevent quantity from going negative by setting wholeAmount
                 // maximum to amount equal to amount currently stored in array
@@ -238,7 +207,7 @@ public class Currency
                 }
 
                 // calculate remainder
-                remainder = changeAmount - (wholeAmount * value[index]);
+                remainder = changeAmount - (wholeAmount * value);
 
                 // update change amount
                 changeAmount = remainder;
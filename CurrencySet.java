@@ -0,0 +1,147 @@
+/**
+ * CurrencySet holds the immutable denomination information (currency codes,
+ * names, types and values) parsed from a formatted currency data file.
+ * Denomination sets are shared between every Currency loaded from the same
+ * file, so each machine only keeps its own quantities.
+ * @author Alex Sandberg-Bernard
+ */
+
+// import IO
+import java.io.*;
+
+public final class CurrencySet
+{
+    // denomination sets already loaded, one per data file
+    private static final FileCache<CurrencySet> currencySets =
+            new FileCache<>(CurrencySet::importFile);
+
+    // currency data file layout: currency, name, type, value, quantity
+    private static final FixedWidthImporter importer =
+            new FixedWidthImporter(new int[] {3, 15, 47, 67, 85},
+                    new int[] {10, 40, 60, 75, 90},
+                    new int[] {FixedWidthImporter.CODED,
+                            FixedWidthImporter.TEXT,
+                            FixedWidthImporter.CODED,
+                            FixedWidthImporter.DECIMAL,
+                            FixedWidthImporter.INTEGER});
+
+    // class variables
+    private final int entries;
+    private final String header;
+
+    // shared denomination columns
+    private final StringDictionary currency;
+    private final String[] currencyName;
+    private final StringDictionary currencyType;
+    private final double[] value;
+    private final int[] quantities;
+
+    /**
+     * Private constructor; denomination sets are obtained through load().
+     */
+    private CurrencySet(String header, StringDictionary currency,
+                        String[] currencyName, StringDictionary currencyType,
+                        double[] value, int[] quantities)
+    {
+        // set class variables
+        this.entries = value.length;
+        this.header = header;
+        this.currency = currency;
+        this.currencyName = currencyName;
+        this.currencyType = currencyType;
+        this.value = value;
+        this.quantities = quantities;
+    }
+
+    /**
+     * Returns the shared denomination set for a currency data file, importing
+     * the file only if it has not been imported before or has changed since.
+     * @param currencyFile -- user-supplied formatted currency data file
+     * @return shared CurrencySet for the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static CurrencySet load(File currencyFile) throws IOException
+    {
+        return currencySets.get(currencyFile);
+    }
+
+    /**
+     * Imports a currency data file into a new denomination set.
+     */
+    private static CurrencySet importFile(File currencyFile)
+            throws IOException
+    {
+        FixedWidthImporter.Table table = importer.importFile(currencyFile);
+        return new CurrencySet(table.getHeader(), table.getCoded(0),
+                table.getText(1), table.getCoded(2), table.getDecimal(3),
+                table.getInteger(4));
+    }
+
+    /**
+     * Returns the amount of denominations in the set.
+     * @return integer count of denominations
+     */
+    public int size()
+    {
+        return entries;
+    }
+
+    /**
+     * Returns the header line of the currency data file.
+     * @return String header
+     */
+    public String getHeader()
+    {
+        return header;
+    }
+
+    /**
+     * Returns the currency code at a zero-based index.
+     * @param index -- zero-based denomination index
+     * @return String currency code
+     */
+    public String getCurrency(int index)
+    {
+        return currency.get(index);
+    }
+
+    /**
+     * Returns the denomination name at a zero-based index.
+     * @param index -- zero-based denomination index
+     * @return String denomination name
+     */
+    public String getCurrencyName(int index)
+    {
+        return currencyName[index];
+    }
+
+    /**
+     * Returns the currency type at a zero-based index.
+     * @param index -- zero-based denomination index
+     * @return String currency type
+     */
+    public String getCurrencyType(int index)
+    {
+        return currencyType.get(index);
+    }
+
+    /**
+     * Returns the value at a zero-based index.
+     * @param index -- zero-based denomination index
+     * @return double value of one unit of the denomination
+     */
+    public double getValue(int index)
+    {
+        return value[index];
+    }
+
+    /**
+     * Returns a fresh copy of the quantities listed in the data file, for use
+     * as a machine's starting cash box.
+     * @return new int array of starting quantities
+     */
+    public int[] getStartingQuantities()
+    {
+        return quantities.clone();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * FileCache keeps one shared object per data file, built from the file by a
+ * loader. Entries are keyed by the file's canonical path and tagged with its
+ * length and modification time; when a file changes, the next request loads
+ * it again and the new object replaces the old one, so only the latest
+ * version of each file stays in memory.
+ * @author Alex Sandberg-Bernard
+ */
+
+// import IO and collections
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class FileCache<T>
+{
+    /**
+     * Loader builds the cached object from a data file.
+     */
+    public interface Loader<T>
+    {
+        /**
+         * Builds the object for a data file.
+         * @param file -- data file to load
+         * @return object built from the file
+         * @throws IOException if the file cannot be read or is malformed
+         */
+        T load(File file) throws IOException;
+    }
+
+    // class variables
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final Loader<T> loader;
+
+    /**
+     * Constructor creates an empty cache.
+     * @param loader -- builds the object for a data file
+     */
+    public FileCache(Loader<T> loader)
+    {
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the object for a data file, loading the file only if it has
+     * not been loaded before or has changed since. Loading runs without
+     * holding any lock, so different files load in parallel.
+     * @param file -- data file
+     * @return shared object for the current version of the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public T get(File file) throws IOException
+    {
+        String path = file.getCanonicalPath();
+        String version = file.length() + "|" + file.lastModified();
+        Entry<T> entry = entries.get(path);
+        if(entry != null && entry.version.equals(version))
+        {
+            return entry.value;
+        }
+
+        // if another thread cached this same version while we were loading,
+        // return its object so every caller shares one instance
+        Entry<T> loaded = new Entry<>(version, loader.load(file));
+        return entries.compute(path, (key, cached) ->
+                (cached != null && cached.version.equals(version))
+                        ? cached : loaded).value;
+    }
+
+    /**
+     * Entry pairs a cached object with the file version it was loaded from.
+     */
+    private static final class Entry<T>
+    {
+        // entry variables
+        private final String version;
+        private final T value;
+
+        private Entry(String version, T value)
+        {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,594 @@
+/**
+ * FixedWidthImporter parses large formatted (fixed-width) data files into
+ * primitive column arrays. The file is memory-mapped and split into
+ * line-aligned chunks that are parsed in parallel, with field widths and
+ * numeric fields validated as each line is read. Lines are decoded as UTF-8
+ * and columns are measured in characters.
+ * @author Alex Sandberg-Bernard
+ */
+
+// import IO, NIO, collections and streams
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+public final class FixedWidthImporter
+{
+    // column kinds
+    public static final int TEXT = 0;
+    public static final int CODED = 1;
+    public static final int DECIMAL = 2;
+    public static final int INTEGER = 3;
+
+    // smallest chunk worth handing to another thread, in bytes
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    // column layout
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] kinds;
+    private final int lineWidth;
+
+    /**
+     * Constructor describes the fixed-width layout of the data lines. Each
+     * column spans the characters from its start (inclusive) to its end
+     * (exclusive), as with String.substring(). CODED columns are text columns
+     * with few distinct values, returned dictionary-encoded.
+     * @param starts -- start position of each column
+     * @param ends -- end position of each column
+     * @param kinds -- TEXT, CODED, DECIMAL or INTEGER for each column
+     */
+    public FixedWidthImporter(int[] starts, int[] ends, int[] kinds)
+    {
+        // set class variables
+        this.starts = starts.clone();
+        this.ends = ends.clone();
+        this.kinds = kinds.clone();
+
+        // lines must be at least as wide as the last column ends
+        int width = 0;
+        for(int column = 0; column<ends.length; column++)
+        {
+            width = Math.max(width, ends[column]);
+        }
+        this.lineWidth = width;
+    }
+
+    /**
+     * Imports a formatted data file: a header line, a blank line, then one
+     * fixed-width entry per line. Blank lines among the entries are skipped,
+     * so the amount of entries does not need to be known in advance.
+     * @param file -- formatted data file
+     * @return Table holding the header and the parsed columns
+     * @throws IOException if the file cannot be read, or if a line is not
+     * valid UTF-8, is too short or holds an invalid numeric field
+     */
+    public Table importFile(File file) throws IOException
+    {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ))
+        {
+            if(channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException(file + ": file too large to import");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+        int size = buffer.limit();
+
+        // read header, then eat blank line
+        int headerEnd = lineEnd(buffer, 0, size);
+        String header = new String(copy(buffer, 0,
+                trimReturn(buffer, 0, headerEnd)), StandardCharsets.UTF_8);
+        int dataStart = Math.min(size, lineEnd(buffer,
+                Math.min(size, headerEnd + 1), size) + 1);
+
+        // split data into line-aligned chunks, a few per core
+        int dataSize = size - dataStart;
+        int chunks = (int) Math.max(1, Math.min(
+                (long) Runtime.getRuntime().availableProcessors() * 4,
+                dataSize / MIN_CHUNK_SIZE));
+        int[] bounds = new int[chunks + 1];
+        bounds[0] = dataStart;
+        bounds[chunks] = size;
+        for(int chunk = 1; chunk<chunks; chunk++)
+        {
+            int position = dataStart + (int) ((long) dataSize * chunk / chunks);
+            position = Math.max(position, bounds[chunk-1]);
+            bounds[chunk] = Math.min(size,
+                    lineEnd(buffer, position, size) + 1);
+        }
+
+        // parse chunks in parallel
+        Chunk[] parsed = IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> parseChunk(buffer, bounds[chunk],
+                        bounds[chunk+1]))
+                .toArray(Chunk[]::new);
+
+        // report first invalid line by its line number in the file
+        int[] offsets = new int[chunks];
+        int rows = 0;
+        int lineNumber = 3;
+        for(int chunk = 0; chunk<chunks; chunk++)
+        {
+            if(parsed[chunk].error != null)
+            {
+                throw new IOException(file + ", line " +
+                        (lineNumber + parsed[chunk].lines) + ": " +
+                        parsed[chunk].error);
+            }
+            offsets[chunk] = rows;
+            rows += parsed[chunk].rows;
+            lineNumber += parsed[chunk].lines;
+        }
+
+        // merge chunk dictionaries; each chunk gets a map from its own codes
+        // to codes in the merged dictionary
+        String[][] dictionaries = new String[kinds.length][];
+        int[][][] remaps = new int[kinds.length][chunks][];
+        for(int column = 0; column<kinds.length; column++)
+        {
+            if(kinds[column] != CODED)
+            {
+                continue;
+            }
+            Map<String, Integer> lookup = new HashMap<>();
+            List<String> distinct = new ArrayList<>();
+            for(int chunk = 0; chunk<chunks; chunk++)
+            {
+                List<String> local = parsed[chunk].distinct.get(column);
+                remaps[column][chunk] = new int[local.size()];
+                for(int code = 0; code<local.size(); code++)
+                {
+                    Integer merged = lookup.get(local.get(code));
+                    if(merged == null)
+                    {
+                        merged = distinct.size();
+                        lookup.put(local.get(code), merged);
+                        distinct.add(local.get(code));
+                    }
+                    remaps[column][chunk][code] = merged;
+                }
+            }
+            dictionaries[column] = distinct.toArray(new String[0]);
+        }
+
+        // copy chunk columns into place in parallel
+        Object[] columns = new Object[kinds.length];
+        for(int column = 0; column<kinds.length; column++)
+        {
+            columns[column] = newColumn(kinds[column], rows);
+        }
+        IntStream.range(0, chunks).parallel().forEach(chunk ->
+        {
+            for(int column = 0; column<kinds.length; column++)
+            {
+                if(kinds[column] == CODED)
+                {
+                    int[] codes = (int[]) parsed[chunk].columns[column];
+                    int[] merged = (int[]) columns[column];
+                    int[] remap = remaps[column][chunk];
+                    for(int row = 0; row<parsed[chunk].rows; row++)
+                    {
+                        merged[offsets[chunk] + row] = remap[codes[row]];
+                    }
+                }
+                else
+                {
+                    System.arraycopy(parsed[chunk].columns[column], 0,
+                            columns[column], offsets[chunk],
+                            parsed[chunk].rows);
+                }
+            }
+        });
+
+        return new Table(header, rows, columns, dictionaries);
+    }
+
+    /**
+     * Parses every line between two line-aligned positions. Parsing stops at
+     * the first invalid line, which is recorded on the returned chunk.
+     */
+    private Chunk parseChunk(MappedByteBuffer buffer, int from, int to)
+    {
+        Chunk chunk = new Chunk(kinds, Math.max(16, (to - from) / 64));
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        char[] line = new char[Math.max(256, lineWidth)];
+        char[] field = new char[lineWidth];
+
+        int position = from;
+        while(position < to)
+        {
+            int end = lineEnd(buffer, position, to);
+            int byteLength = trimReturn(buffer, position, end) - position;
+
+            // decode line; ASCII lines are copied directly
+            if(byteLength > line.length)
+            {
+                line = new char[byteLength];
+            }
+            int length = 0;
+            while(length < byteLength && buffer.get(position + length) >= 0)
+            {
+                line[length] = (char) buffer.get(position + length);
+                length++;
+            }
+            if(length < byteLength)
+            {
+                try
+                {
+                    CharBuffer decoded = decoder.decode(ByteBuffer.wrap(
+                            copy(buffer, position, position + byteLength)));
+                    length = decoded.remaining();
+                    decoded.get(line, 0, length);
+                }
+                catch(CharacterCodingException exception)
+                {
+                    chunk.error = "invalid UTF-8";
+                    return chunk;
+                }
+            }
+
+            // skip blank lines
+            if(length > 0)
+            {
+                // validate width
+                if(length < lineWidth)
+                {
+                    chunk.error = "expected at least " + lineWidth +
+                            " characters but found " + length;
+                    return chunk;
+                }
+
+                chunk.ensureCapacity();
+                for(int column = 0; column<kinds.length; column++)
+                {
+                    // copy field; text drops all spaces, numbers only their
+                    // padding, so spaces between digits are rejected below
+                    String text;
+                    if(kinds[column] == DECIMAL || kinds[column] == INTEGER)
+                    {
+                        int first = starts[column];
+                        int last = ends[column];
+                        while(first < last && line[first] == ' ')
+                        {
+                            first++;
+                        }
+                        while(last > first && line[last-1] == ' ')
+                        {
+                            last--;
+                        }
+                        text = new String(line, first, last - first);
+                    }
+                    else
+                    {
+                        int count = 0;
+                        for(int index = starts[column]; index<ends[column];
+                            index++)
+                        {
+                            if(line[index] != ' ')
+                            {
+                                field[count++] = line[index];
+                            }
+                        }
+                        text = new String(field, 0, count);
+                    }
+
+                    // store field, validating numeric columns
+                    String error = null;
+                    switch(kinds[column])
+                    {
+                        case DECIMAL:
+                        {
+                            error = checkNumber(text, true);
+                            if(error == null)
+                            {
+                                double value = Double.parseDouble(text);
+                                if(Double.isInfinite(value))
+                                {
+                                    error = "number \"" + text +
+                                            "\" out of range";
+                                }
+                                ((double[]) chunk.columns[column])
+                                        [chunk.rows] = value;
+                            }
+                            break;
+                        }
+                        case INTEGER:
+                        {
+                            error = checkNumber(text, false);
+                            if(error == null)
+                            {
+                                try
+                                {
+                                    ((int[]) chunk.columns[column])
+                                            [chunk.rows] =
+                                            Integer.parseInt(text);
+                                }
+                                catch(NumberFormatException exception)
+                                {
+                                    error = "number \"" + text +
+                                            "\" out of range";
+                                }
+                            }
+                            break;
+                        }
+                        case CODED:
+                        {
+                            ((int[]) chunk.columns[column])[chunk.rows] =
+                                    chunk.code(column, text);
+                            break;
+                        }
+                        default:
+                        {
+                            ((String[]) chunk.columns[column])[chunk.rows]
+                                    = text;
+                        }
+                    }
+                    if(error != null)
+                    {
+                        chunk.error = error + " in columns " +
+                                starts[column] + "-" + ends[column];
+                        return chunk;
+                    }
+                }
+                chunk.rows++;
+            }
+
+            chunk.lines++;
+            position = end + 1;
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Checks that a field holds a plain non-negative number: digits with, for
+     * decimals, at most one decimal point, and no spaces. Returns null if the
+     * field is valid, or a description of the problem.
+     */
+    private static String checkNumber(String text, boolean decimal)
+    {
+        if(text.isEmpty())
+        {
+            return "missing number";
+        }
+        if(text.charAt(0) == '-')
+        {
+            return "negative number \"" + text + "\"";
+        }
+
+        int digits = 0;
+        boolean point = false;
+        for(int index = 0; index<text.length(); index++)
+        {
+            char character = text.charAt(index);
+            if(character >= '0' && character <= '9')
+            {
+                digits++;
+            }
+            else if(character == '.' && decimal && !point)
+            {
+                point = true;
+            }
+            else
+            {
+                return "invalid number \"" + text + "\"";
+            }
+        }
+        if(digits == 0)
+        {
+            return "invalid number \"" + text + "\"";
+        }
+        return null;
+    }
+
+    /**
+     * Returns the position of the next line feed at or after a position, or
+     * the limit if there is none.
+     */
+    private static int lineEnd(MappedByteBuffer buffer, int position,
+                               int limit)
+    {
+        while(position < limit && buffer.get(position) != '\n')
+        {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the end of a line with any trailing carriage return removed.
+     */
+    private static int trimReturn(MappedByteBuffer buffer, int start, int end)
+    {
+        if(end > start && buffer.get(end-1) == '\r')
+        {
+            return end-1;
+        }
+        return end;
+    }
+
+    /**
+     * Copies a range of the buffer to a new array.
+     */
+    private static byte[] copy(MappedByteBuffer buffer, int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Creates a primitive (or String) array for a column kind.
+     */
+    private static Object newColumn(int kind, int rows)
+    {
+        switch(kind)
+        {
+            case DECIMAL: return new double[rows];
+            case INTEGER: case CODED: return new int[rows];
+            default: return new String[rows];
+        }
+    }
+
+    /**
+     * Chunk holds the columns parsed by one worker, grown as needed. CODED
+     * columns hold codes into the chunk's own dictionary.
+     */
+    private static final class Chunk
+    {
+        // chunk variables
+        private final int[] kinds;
+        private final Object[] columns;
+        private final List<Map<String, Integer>> lookups;
+        private final List<List<String>> distinct;
+        private int capacity;
+        private int rows;
+        private int lines;
+        private String error;
+
+        private Chunk(int[] kinds, int capacity)
+        {
+            this.kinds = kinds;
+            this.capacity = capacity;
+            this.columns = new Object[kinds.length];
+            this.lookups = new ArrayList<>();
+            this.distinct = new ArrayList<>();
+            for(int column = 0; column<kinds.length; column++)
+            {
+                columns[column] = newColumn(kinds[column], capacity);
+                lookups.add(new HashMap<>());
+                distinct.add(new ArrayList<>());
+            }
+        }
+
+        // return the chunk's code for a CODED value, adding it if new
+        private int code(int column, String text)
+        {
+            Integer code = lookups.get(column).get(text);
+            if(code == null)
+            {
+                code = distinct.get(column).size();
+                lookups.get(column).put(text, code);
+                distinct.get(column).add(text);
+            }
+            return code;
+        }
+
+        // double column capacity when full
+        private void ensureCapacity()
+        {
+            if(rows < capacity)
+            {
+                return;
+            }
+            capacity *= 2;
+            for(int column = 0; column<kinds.length; column++)
+            {
+                Object grown = newColumn(kinds[column], capacity);
+                System.arraycopy(columns[column], 0, grown, 0, rows);
+                columns[column] = grown;
+            }
+        }
+    }
+
+    /**
+     * Table holds the header line and parsed columns of an imported file.
+     */
+    public static final class Table
+    {
+        // table variables
+        private final String header;
+        private final int rows;
+        private final Object[] columns;
+        private final String[][] dictionaries;
+
+        private Table(String header, int rows, Object[] columns,
+                      String[][] dictionaries)
+        {
+            this.header = header;
+            this.rows = rows;
+            this.columns = columns;
+            this.dictionaries = dictionaries;
+        }
+
+        /**
+         * Returns the header line of the data file.
+         * @return String header
+         */
+        public String getHeader()
+        {
+            return header;
+        }
+
+        /**
+         * Returns the amount of entries imported.
+         * @return integer count of entries
+         */
+        public int getRows()
+        {
+            return rows;
+        }
+
+        /**
+         * Returns a TEXT column.
+         * @param column -- zero-based column index
+         * @return String array holding one value per entry
+         */
+        public String[] getText(int column)
+        {
+            return (String[]) columns[column];
+        }
+
+        /**
+         * Returns a CODED column as a dictionary of its distinct values and
+         * a code per entry.
+         * @param column -- zero-based column index
+         * @return StringDictionary holding one value per entry
+         */
+        public StringDictionary getCoded(int column)
+        {
+            return new StringDictionary(dictionaries[column],
+                    (int[]) columns[column]);
+        }
+
+        /**
+         * Returns a DECIMAL column.
+         * @param column -- zero-based column index
+         * @return double array holding one value per entry
+         */
+        public double[] getDecimal(int column)
+        {
+            return (double[]) columns[column];
+        }
+
+        /**
+         * Returns an INTEGER column.
+         * @param column -- zero-based column index
+         * @return int array holding one value per entry
+         */
+        public int[] getInteger(int column)
+        {
+            return (int[]) columns[column];
+        }
+    }
+}
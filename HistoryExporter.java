@@ -0,0 +1,253 @@
+/**
+ * HistoryExporter streams completed sales and dispensed change to columnar
+ * history files for offline analysis. Sales are written to
+ * &lt;base&gt;.sales and dispensed change to &lt;base&gt;.change, both in
+ * the ColumnFile format. Existing history files are appended to, and sale
+ * numbers continue from the last recorded sale. If writing fails, the
+ * failure is reported once and recording stops, so callers never need to
+ * handle history errors.
+ * @author Alex Sandberg-Bernard
+ */
+
+// import IO
+import java.io.*;
+
+public class HistoryExporter implements Closeable
+{
+    // rows gathered per compressed block
+    private static final int BLOCK_ROWS = 4096;
+
+    // sales file columns
+    public static final int SALE_NUMBER = 0;
+    public static final int SALE_TIME = 1;
+    public static final int SALE_ITEM = 2;
+    public static final int SALE_PRICE = 3;
+    public static final int SALE_CURRENCY = 4;
+    public static final int SALE_CURRENCY_NUMS = 5;
+    public static final int SALE_PAID = 6;
+    private static final int[] SALE_TYPES = {ColumnFile.INT, ColumnFile.LONG,
+            ColumnFile.INT, ColumnFile.DOUBLE, ColumnFile.INT, ColumnFile.INT,
+            ColumnFile.DOUBLE};
+
+    // change file columns
+    public static final int CHANGE_SALE = 0;
+    public static final int CHANGE_CURRENCY = 1;
+    public static final int CHANGE_COUNT = 2;
+    public static final int CHANGE_VALUE = 3;
+    private static final int[] CHANGE_TYPES = {ColumnFile.INT, ColumnFile.INT,
+            ColumnFile.INT, ColumnFile.DOUBLE};
+
+    // class variables
+    private final ColumnFile.Writer sales;
+    private final ColumnFile.Writer change;
+    private int saleNumber = 0;
+    private boolean stopped = false;
+
+    /**
+     * Constructor creates the sales and change history files, or opens
+     * existing ones to append to.
+     * @param base -- base path of the history files
+     * @throws IOException if either file cannot be created, or exists but is
+     * not a history file of the right kind
+     */
+    public HistoryExporter(String base) throws IOException
+    {
+        // continue sale numbers from any existing sales history
+        File existing = salesFile(base);
+        if(existing.length() > 0)
+        {
+            try (ColumnFile.Reader reader = new ColumnFile.Reader(existing))
+            {
+                for(long number : reader.readLongs(SALE_NUMBER))
+                {
+                    saleNumber = (int) Math.max(saleNumber, number);
+                }
+            }
+        }
+
+        // set class variables
+        sales = new ColumnFile.Writer(salesFile(base), SALE_TYPES,
+                BLOCK_ROWS);
+        try
+        {
+            change = new ColumnFile.Writer(changeFile(base), CHANGE_TYPES,
+                    BLOCK_ROWS);
+        }
+        catch(IOException exception)
+        {
+            try
+            {
+                sales.close();
+            }
+            catch(IOException closeException)
+            {
+                exception.addSuppressed(closeException);
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the sales history file for a base path.
+     * @param base -- base path of the history files
+     * @return File holding sales history
+     */
+    public static File salesFile(String base)
+    {
+        return new File(base + ".sales");
+    }
+
+    /**
+     * Returns the change history file for a base path.
+     * @param base -- base path of the history files
+     * @return File holding dispensed change history
+     */
+    public static File changeFile(String base)
+    {
+        return new File(base + ".change");
+    }
+
+    /**
+     * Records a completed sale. Change dispensed afterwards is linked to this
+     * sale by its sale number.
+     * @param itemNum -- item number purchased, as displayed on console
+     * @param itemCost -- double representing cost of item
+     * @param currencyType -- currency number used for payment, as displayed
+     *                     on console
+     * @param currencyNums -- quantity of currency used for payment
+     * @param currencyValue -- double representing value of payment
+     */
+    public synchronized void recordSale(int itemNum, double itemCost,
+                                        int currencyType, int currencyNums,
+                                        double currencyValue)
+    {
+        if(stopped)
+        {
+            return;
+        }
+
+        saleNumber++;
+        sales.putLong(SALE_NUMBER, saleNumber);
+        sales.putLong(SALE_TIME, System.currentTimeMillis());
+        sales.putLong(SALE_ITEM, itemNum);
+        sales.putDouble(SALE_PRICE, itemCost);
+        sales.putLong(SALE_CURRENCY, currencyType);
+        sales.putLong(SALE_CURRENCY_NUMS, currencyNums);
+        sales.putDouble(SALE_PAID, currencyValue);
+        try
+        {
+            sales.endRow();
+        }
+        catch(IOException exception)
+        {
+            fail(exception);
+        }
+    }
+
+    /**
+     * Records change dispensed for the most recent sale.
+     * @param currencyType -- currency number dispensed, as displayed on
+     *                     console
+     * @param count -- quantity of currency dispensed
+     * @param value -- double representing value of one unit of currency
+     */
+    public synchronized void recordChange(int currencyType, int count,
+                                          double value)
+    {
+        if(stopped)
+        {
+            return;
+        }
+
+        change.putLong(CHANGE_SALE, saleNumber);
+        change.putLong(CHANGE_CURRENCY, currencyType);
+        change.putLong(CHANGE_COUNT, count);
+        change.putDouble(CHANGE_VALUE, value);
+        try
+        {
+            change.endRow();
+        }
+        catch(IOException exception)
+        {
+            fail(exception);
+        }
+    }
+
+    /**
+     * Flushes remaining history and closes both files. Safe to call more
+     * than once, e.g. from both a finally block and a shutdown hook.
+     */
+    @Override
+    public synchronized void close()
+    {
+        boolean reported = stopped;
+        stopped = true;
+
+        // close both files, reporting only the first failure
+        IOException failure = null;
+        try
+        {
+            sales.close();
+        }
+        catch(IOException exception)
+        {
+            failure = exception;
+        }
+        try
+        {
+            change.close();
+        }
+        catch(IOException exception)
+        {
+            if(failure == null)
+            {
+                failure = exception;
+            }
+        }
+        if(failure != null && !reported)
+        {
+            System.out.println("Exception: " + failure);
+        }
+    }
+
+    // report a write failure once and stop recording
+    private void fail(IOException exception)
+    {
+        stopped = true;
+        System.out.println("Exception: " + exception);
+        System.out.println("Sales history recording stopped.");
+    }
+
+    /**
+     * Totals revenue per item from a sales history file, reading only the
+     * item and price columns.
+     * @param salesFile -- sales history file
+     * @param inventoryEntries -- integer value representing amount of items
+     *                         in inventory
+     * @return double array of revenue, indexed by item number - 1
+     * @throws IOException if the file cannot be read or holds an item number
+     * outside the inventory
+     */
+    public static double[] itemRevenue(File salesFile, int inventoryEntries)
+            throws IOException
+    {
+        try (ColumnFile.Reader reader = new ColumnFile.Reader(salesFile))
+        {
+            long[] items = reader.readLongs(SALE_ITEM);
+            double[] prices = reader.readDoubles(SALE_PRICE);
+
+            double[] revenue = new double[inventoryEntries];
+            for(int row = 0; row<items.length; row++)
+            {
+                if(items[row] < 1 || items[row] > inventoryEntries)
+                {
+                    throw new IOException(salesFile + ", row " + row +
+                            ": item number " + items[row] +
+                            " outside inventory of " + inventoryEntries);
+                }
+                revenue[(int) items[row] - 1] += prices[row];
+            }
+            return revenue;
+        }
+    }
+}
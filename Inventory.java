@@ -5,79 +5,26 @@
  * @author Alex Sandberg-Bernard
  */
 
-// import IO
-import java.io.*;
-
 public class Inventory
 {
     // class variables
-    private File inventoryFile;
     private int inventoryEntries;
-    private String header;
 
-    // class inventory arrays
-    private String[] productNames;
-    private double[] prices;
-    private String[] containers;
+    // shared product information; only quantities are held per machine
+    private InventoryCatalog catalog;
     int[] quantities;
 
     /**
-     * Default class constructor to create Inventory objects.
-     * @param inventoryFile -- user-supplied formatted inventory data file
-     * @param inventoryEntries -- integer specifying the amount of entries in
-     *                         inventory data file
+     * Default class constructor to create Inventory objects sharing an already
+     * loaded catalog, stocked with the quantities listed in its data file.
+     * @param catalog -- shared catalog of product information
      */
-    public Inventory(File inventoryFile, int inventoryEntries)
+    public Inventory(InventoryCatalog catalog)
     {
         // set class variables
-        this.inventoryFile = inventoryFile;
-        this.inventoryEntries = inventoryEntries;
-    }
-
-    /**
-     * Setter method loads class arrays with data from inventory data file.
-     * @param inventoryFile -- user-supplied formatted inventory data file
-     * @param inventoryEntries -- integer specifying the amount of entries in
-     *                         inventory data file
-     */
-    public void setInventory(File inventoryFile, int inventoryEntries)
-    {
-        // read inventory data file
-        // use try/catch to catch IO exceptions
-        try (BufferedReader br = new BufferedReader(new FileReader
-                (inventoryFile)))
-        {
-            // read header to String
-            header = br.readLine();
-
-            // eat blank line
-            br.readLine();
-
-            // create inventory arrays of size inventoryEntries
-            productNames = new String[inventoryEntries];
-            prices = new double[inventoryEntries];
-            containers = new String[inventoryEntries];
-            quantities = new int[inventoryEntries];
-
-            // fill arrays by substringing inventory data file
-            for(int index = 0; index<inventoryEntries; index++)
-            {
-                String line;
-                line = br.readLine();
-                productNames[index] = line.substring(0,18).
-                        replaceAll(" ", "");
-                prices[index] = Double.valueOf(line.substring(32,38).
-                        replaceAll(" ", ""));
-                containers[index] = line.substring(47,54).
-                        replaceAll(" ", "");
-                quantities[index] = Integer.valueOf(line.substring(65,69).
-                        replaceAll(" ", ""));
-            }
-        }
-        catch(IOException exception)
-        {
-            System.out.println("Exception: " + exception);
-        }
+        this.inventoryEntries = catalog.size();
+        this.catalog = catalog;
+        this.quantities = catalog.getStartingQuantities();
     }
 
     /**
@@ -87,13 +34,14 @@ public class Inventory
     {
         // print formatted current inventory information
         System.out.println();
-        System.out.println(String.format("%5s%16s", "Item #", header));
+        System.out.println(String.format("%5s%16s", "Item #",
+                catalog.getHeader()));
         for(int index = 0; index<inventoryEntries; index++)
         {
             System.out.print(String.format("%5s%s", (index+1), "."));
             System.out.println(String.format("%18s%20.2f%16s%15d",
-                    productNames[index], prices[index], containers[index],
-                    quantities[index]));
+                    catalog.getProductName(index), catalog.getPrice(index),
+                    catalog.getContainer(index), quantities[index]));
         }
     }
 
@@ -108,10 +56,10 @@ public class Inventory
     {
         // print formatted current item information
         System.out.println("\nItem #: " + itemNum);
-        System.out.println("Name: " + productNames[itemNum-1] + "    "
-        + "Price: " + prices[itemNum-1] + "    " + "Container: " +
-                containers[itemNum-1] + "    " + "Quantity: " +
-                quantities[itemNum-1] + " in stock");
+        System.out.println("Name: " + catalog.getProductName(itemNum-1) +
+                "    " + "Price: " + catalog.getPrice(itemNum-1) + "    " +
+                "Container: " + catalog.getContainer(itemNum-1) + "    " +
+                "Quantity: " + quantities[itemNum-1] + " in stock");
 
     }
 
@@ -124,7 +72,7 @@ public class Inventory
      */
     public double getItemCost(int itemNum)
     {
-        return prices[itemNum-1];
+        return catalog.getPrice(itemNum-1);
     }
 
     /**
@@ -158,8 +106,8 @@ public class Inventory
      */
     public boolean funds(double currencyValue, int itemNum)
     {
-        // check prices array for item price
-        if(currencyValue < prices[itemNum-1])
+        // check catalog for item price
+        if(currencyValue < catalog.getPrice(itemNum-1))
         {
             return false;
         }
@@ -0,0 +1,133 @@
+/**
+ * InventoryCatalog holds the immutable product information (names, prices and
+ * containers) parsed from a formatted inventory data file. Catalogs are
+ * shared between every Inventory loaded from the same file, so each machine
+ * only keeps its own quantities.
+ * @author Alex Sandberg-Bernard
+ */
+
+// import IO
+import java.io.*;
+
+public final class InventoryCatalog
+{
+    // catalogs already loaded, one per data file
+    private static final FileCache<InventoryCatalog> catalogs =
+            new FileCache<>(InventoryCatalog::importFile);
+
+    // inventory data file layout: name, price, container, quantity
+    private static final FixedWidthImporter importer =
+            new FixedWidthImporter(new int[] {0, 32, 47, 65},
+                    new int[] {18, 38, 54, 69},
+                    new int[] {FixedWidthImporter.TEXT,
+                            FixedWidthImporter.DECIMAL,
+                            FixedWidthImporter.CODED,
+                            FixedWidthImporter.INTEGER});
+
+    // class variables
+    private final int entries;
+    private final String header;
+
+    // shared catalog columns
+    private final String[] productNames;
+    private final double[] prices;
+    private final StringDictionary containers;
+    private final int[] quantities;
+
+    /**
+     * Private constructor; catalogs are obtained through load().
+     */
+    private InventoryCatalog(String header, String[] productNames,
+                             double[] prices, StringDictionary containers,
+                             int[] quantities)
+    {
+        // set class variables
+        this.entries = prices.length;
+        this.header = header;
+        this.productNames = productNames;
+        this.prices = prices;
+        this.containers = containers;
+        this.quantities = quantities;
+    }
+
+    /**
+     * Returns the shared catalog for an inventory data file, importing the
+     * file only if it has not been imported before or has changed since.
+     * @param inventoryFile -- user-supplied formatted inventory data file
+     * @return shared InventoryCatalog for the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static InventoryCatalog load(File inventoryFile) throws IOException
+    {
+        return catalogs.get(inventoryFile);
+    }
+
+    /**
+     * Imports an inventory data file into a new catalog.
+     */
+    private static InventoryCatalog importFile(File inventoryFile)
+            throws IOException
+    {
+        FixedWidthImporter.Table table = importer.importFile(inventoryFile);
+        return new InventoryCatalog(table.getHeader(), table.getText(0),
+                table.getDecimal(1), table.getCoded(2), table.getInteger(3));
+    }
+
+    /**
+     * Returns the amount of items in the catalog.
+     * @return integer count of catalog entries
+     */
+    public int size()
+    {
+        return entries;
+    }
+
+    /**
+     * Returns the header line of the inventory data file.
+     * @return String header
+     */
+    public String getHeader()
+    {
+        return header;
+    }
+
+    /**
+     * Returns the product name at a zero-based index.
+     * @param index -- zero-based item index
+     * @return String product name
+     */
+    public String getProductName(int index)
+    {
+        return productNames[index];
+    }
+
+    /**
+     * Returns the price at a zero-based index.
+     * @param index -- zero-based item index
+     * @return double price of item
+     */
+    public double getPrice(int index)
+    {
+        return prices[index];
+    }
+
+    /**
+     * Returns the container type at a zero-based index.
+     * @param index -- zero-based item index
+     * @return String container type
+     */
+    public String getContainer(int index)
+    {
+        return containers.get(index);
+    }
+
+    /**
+     * Returns a fresh copy of the quantities listed in the data file, for use
+     * as a machine's starting stock.
+     * @return new int array of starting quantities
+     */
+    public int[] getStartingQuantities()
+    {
+        return quantities.clone();
+    }
+}
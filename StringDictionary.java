@@ -0,0 +1,36 @@
+/**
+ * StringDictionary holds a dictionary-encoded column of strings, so that
+ * repeated values (currency codes, container types, etc.) are stored only
+ * once and referenced by integer code.
+ * @author Alex Sandberg-Bernard
+ */
+
+public final class StringDictionary
+{
+    // class variables
+    private final String[] entries;
+    private final int[] codes;
+
+    /**
+     * Constructor wraps a dictionary of distinct values and the code of each
+     * row into that dictionary.
+     * @param entries -- distinct values, indexed by code
+     * @param codes -- code of the value for each row
+     */
+    public StringDictionary(String[] entries, int[] codes)
+    {
+        // set class variables
+        this.entries = entries;
+        this.codes = codes;
+    }
+
+    /**
+     * Returns the decoded string stored at the specified row.
+     * @param row -- zero-based row index
+     * @return String value for the row
+     */
+    public String get(int row)
+    {
+        return entries[codes[row]];
+    }
+}
@@ -15,15 +15,17 @@ public class VendingMachineSimulator
      * Main program method processes data files, accepts user console input, and
      * directs flow of program.
      * @param args -- two runtime parameters required: inventory file path,
-     *             currency file path
+     *             currency file path; optional third parameter: history
+     *             file base path
      */
     public static void main(String[] args)
     {
         // ensure runtime parameters are supplied
-        if (!(args.length==2))
+        if (!(args.length==2) && !(args.length==3))
         {
             System.out.println("Program requires two runtime parameters: " +
-                    "<inventory file path>, <currency file path>");
+                    "<inventory file path>, <currency file path>, and " +
+                    "accepts an optional <history file base path>");
             System.exit(1);
         }
 
@@ -32,55 +34,59 @@ public class VendingMachineSimulator
         // load inventory file
         File inventoryFile = new File(args[0]);
 
-        // read file and determine number of inventory entries by counting lines
-        int inventoryEntries = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader
-                (inventoryFile))) // use try/catch for IOExceptions
+        // import shared inventory catalog; entry count comes from the file
+        InventoryCatalog catalog = null;
+        try // use try/catch for IOExceptions
         {
-            String line;
-            while((line = br.readLine()) != null)
-            {
-                inventoryEntries++;
-            }
+            catalog = InventoryCatalog.load(inventoryFile);
         }
         catch (IOException exception)
         {
             System.out.println("Exception: " + exception);
+            System.exit(1);
         }
+        int inventoryEntries = catalog.size();
 
-        // subtract 2 from inventoryEntries to account for headers
-        inventoryEntries = inventoryEntries-2;
-
-        // create new Inventory object using inventoryFile and set inventory
-        Inventory inventory = new Inventory(inventoryFile, inventoryEntries);
-        inventory.setInventory(inventoryFile, inventoryEntries);
+        // create new Inventory object stocked from the catalog
+        Inventory inventory = new Inventory(catalog);
 
         // load currency file
         File currencyFile = new File(args[1]);
 
-        // count currency file entries
-        int currencyEntries = 0;
-        // read file and catch IOExceptions
-        try (BufferedReader br = new BufferedReader(new FileReader
-                (currencyFile)))
+        // import shared denomination set; entry count comes from the file
+        CurrencySet currencySet = null;
+        try // use try/catch for IOExceptions
         {
-            String line;
-            while((line = br.readLine()) != null)
-            {
-                currencyEntries++;
-            }
+            currencySet = CurrencySet.load(currencyFile);
         }
         catch (IOException exception)
         {
             System.out.println("Exception: " + exception);
+            System.exit(1);
         }
+        int currencyEntries = currencySet.size();
 
-        // subtract 2 to account for headers
-        currencyEntries = currencyEntries-2;
+        // create new Currency object filled from the denomination set
+        Currency currency = new Currency(currencySet);
 
-        // create new Currency object using currencyFile and set currency
-        Currency currency = new Currency(currencyFile, currencyEntries);
-        currency.setCurrency(currencyFile, currencyEntries);
+        // open sales and change history files if requested
+        HistoryExporter history = null;
+        if (args.length==3)
+        {
+            try
+            {
+                history = new HistoryExporter(args[2]);
+            }
+            catch (IOException exception)
+            {
+                System.out.println("Exception: " + exception);
+                System.exit(1);
+            }
+            currency.setHistory(history);
+
+            // close history files on any exit, including System.exit()
+            Runtime.getRuntime().addShutdownHook(new Thread(history::close));
+        }
 
         // display command menu
         commandMenu();
@@ -91,51 +97,63 @@ public class VendingMachineSimulator
         // variable for user command
         int commandChoice = -2;
 
-        // use do-while to ensure proper input
-        do
+        // close history files even if the session ends with an exception
+        try
         {
-            // prompt user to enter command
-            System.out.print( "\nEnter Command:  " );
-            commandChoice = input.nextInt();
-            System.out.println();
-
-            // print error if invalid entry
-            if(!(commandChoice==0) && !(commandChoice==1)
-                    && !(commandChoice==2) && !(commandChoice==3)
-                    && !(commandChoice==-1))
+            // use do-while to ensure proper input
+            do
             {
-                System.out.println("Invalid entry.");
-            }
-
-            // use switch to direct program based on user input
-            switch(commandChoice)
-            {
-                case 0: // display command menu
-                {
-                    commandMenu();
-                    break;
-                }
-                case 1: // display inventory
+                // prompt user to enter command
+                System.out.print( "\nEnter Command:  " );
+                commandChoice = input.nextInt();
+                System.out.println();
+
+                // print error if invalid entry
+                if(!(commandChoice==0) && !(commandChoice==1)
+                        && !(commandChoice==2) && !(commandChoice==3)
+                        && !(commandChoice==-1))
                 {
-                    System.out.println("Inventory: ");
-                    inventory.getInventory();
-                    break;
+                    System.out.println("Invalid entry.");
                 }
-                case 2: // display currency
-                {
-                    System.out.println("Currency: ");
-                    currency.getCurrency();
-                    break;
-                }
-                case 3:  // purchase item
+
+                // use switch to direct program based on user input
+                switch(commandChoice)
                 {
-                    purchase(inventory, currency, input, inventoryEntries,
-                            currencyEntries);
+                    case 0: // display command menu
+                    {
+                        commandMenu();
+                        break;
+                    }
+                    case 1: // display inventory
+                    {
+                        System.out.println("Inventory: ");
+                        inventory.getInventory();
+                        break;
+                    }
+                    case 2: // display currency
+                    {
+                        System.out.println("Currency: ");
+                        currency.getCurrency();
+                        break;
+                    }
+                    case 3:  // purchase item
+                    {
+                        purchase(inventory, currency, input, inventoryEntries,
+                                currencyEntries, history);
+                    }
+                    case -1: // exit -- terminates do-while and ends main()
                 }
-                case -1: // exit -- terminates do-while and ends main()
+            }
+            while(!( commandChoice == -1 ));
+        }
+        finally
+        {
+            // flush and close history files
+            if (history != null)
+            {
+                history.close();
             }
         }
-        while(!( commandChoice == -1 ));
     }
 
     /**
@@ -165,10 +183,11 @@ public class VendingMachineSimulator
      *                         inventory from inventory data file
      * @param currencyEntries -- integer value representing amount of currency
      *                        types from currency data file
+     * @param history -- history exporter recording sales, or null
      */
     public static void purchase(Inventory inventory, Currency currency,
                                 Scanner input, int inventoryEntries,
-                                int currencyEntries)
+                                int currencyEntries, HistoryExporter history)
     {
         // method variables
         int itemNum;
@@ -277,6 +296,13 @@ public class VendingMachineSimulator
         // print message if purchase successful
         System.out.println("\nItem purchased!\n");
 
+        // record sale before change so dispensed change is linked to it
+        if (history != null)
+        {
+            history.recordSale(itemNum, itemCost, currencyType, currencyNums,
+                    currencyValue);
+        }
+
         // get adequate change and print results
         currency.getChange(currencyType, currencyNums, currencyValue, itemCost);
 